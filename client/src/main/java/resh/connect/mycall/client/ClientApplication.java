@@ -27,7 +27,8 @@ public class ClientApplication extends Application {
     private Label connectedRoomLabel;
 
     private ObservableList<String> availableRooms = FXCollections.observableArrayList();
-    private ObservableList<Participant> participants = FXCollections.observableArrayList();
+    // Список участников обновляется диффом, не чаще одного раза за кадр
+    private final ParticipantsViewModel participantsModel = new ParticipantsViewModel(Platform::runLater);
 
     private boolean serverConnected = false;
     private boolean roomConnected = false;
@@ -97,7 +98,9 @@ public class ClientApplication extends Application {
         HBox roomControlBox = new HBox(10, roomConnectButton, connectedRoomLabel);
 
         participantsList = new ListView<>();
-        participantsList.setItems(participants);
+        participantsList.setItems(participantsModel.getItems());
+        participantsModel.setOnApplied(room ->
+                statusLabel.setText("Обновлён список участников комнаты '" + room + "'"));
 
         participantsList.setCellFactory(lv -> new ListCell<Participant>() {
             @Override
@@ -210,7 +213,7 @@ public class ClientApplication extends Application {
         micToggle.setVisible(false);
         micToggle.setDisable(true);
         micToggle.setSelected(false);
-        participants.clear();
+        participantsModel.clear();
         availableRooms.clear();
         statusLabel.setText("Отключен от сервера");
 
@@ -246,7 +249,8 @@ public class ClientApplication extends Application {
         roomConnectButton.setText("Подключиться к комнате");
         updateConnectedRoomLabel();
 
-        participants.clear();
+        // Очищаем список, но продолжаем показывать выбранную комнату
+        participantsModel.showRoom(roomChoiceBox.getValue());
         statusLabel.setText("Отключен от комнаты");
 
         micToggle.setVisible(false);
@@ -281,21 +285,14 @@ public class ClientApplication extends Application {
 
             List<Participant> updatedParticipants = simulateServerParticipants(viewedRoom);
 
-            Platform.runLater(() -> {
-                if (viewedRoom.equals(roomChoiceBox.getValue())) {
-                    participants.setAll(updatedParticipants);
-                    statusLabel.setText("Обновлён список участников комнаты '" + viewedRoom + "'");
-                }
-            });
+            // Снимки другой комнаты модель отбросит сама
+            participantsModel.submit(viewedRoom, updatedParticipants);
         }, 0, 5, TimeUnit.SECONDS);
     }
 
     private void updateParticipantsForRoom(String room) {
-        Platform.runLater(() -> {
-            List<Participant> updatedParticipants = simulateServerParticipants(room);
-            participants.setAll(updatedParticipants);
-            statusLabel.setText("Обновлён список участников комнаты '" + room + "'");
-        });
+        participantsModel.showRoom(room);
+        participantsModel.submit(room, simulateServerParticipants(room));
     }
 
     private void stopParticipantsAutoUpdate() {
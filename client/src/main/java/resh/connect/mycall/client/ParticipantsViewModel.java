@@ -0,0 +1,271 @@
+package resh.connect.mycall.client;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import resh.connect.mycall.common.model.Participant;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Модель списка участников для ListView.
+ * Вместо setAll на каждое обновление вычисляет минимальный набор изменений
+ * (добавления, удаления, замены по никнейму), а входящие снимки сворачивает:
+ * на FX-поток уходит не больше одной задачи за кадр, применяется последний снимок.
+ */
+public class ParticipantsViewModel {
+
+    // ~60 кадров в секунду, как у пульса JavaFX
+    static final long FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    private final ObservableList<Participant> items = FXCollections.observableArrayList();
+
+    // Для Platform::runLater в приложении и для ручной очереди в тестах
+    private final Executor fxExecutor;
+
+    // Последний ещё не применённый снимок; более старые просто перезаписываются
+    private final AtomicReference<Snapshot> pending = new AtomicReference<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private volatile String currentRoom;
+    private volatile long lastFlushNanos = System.nanoTime() - FRAME_NANOS;
+    private Consumer<String> onApplied;
+
+    // Статистика
+    private final long createdNanos = System.nanoTime();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong flushRequests = new AtomicLong();
+    private volatile long applied;
+    private volatile long added;
+    private volatile long removed;
+    private volatile long updated;
+    private volatile long fxTimeNanos;
+    private volatile long maxFxTimeNanos;
+
+    public ParticipantsViewModel(Executor fxExecutor) {
+        this.fxExecutor = fxExecutor;
+    }
+
+    public ObservableList<Participant> getItems() {
+        return items;
+    }
+
+    // Вызывается на FX-потоке после применения снимка комнаты
+    public void setOnApplied(Consumer<String> onApplied) {
+        this.onApplied = onApplied;
+    }
+
+    /**
+     * Переключение на другую комнату (FX-поток). Список очищается,
+     * снимки других комнат дальше игнорируются.
+     */
+    public void showRoom(String room) {
+        currentRoom = room;
+        pending.set(null);
+        items.clear();
+    }
+
+    // Сброс списка (FX-поток)
+    public void clear() {
+        showRoom(null);
+    }
+
+    /**
+     * Приём снимка участников комнаты с любого потока.
+     */
+    public void submit(String room, List<Participant> participants) {
+        if (room == null || !room.equals(currentRoom)) return;
+        submitted.incrementAndGet();
+        pending.set(new Snapshot(room, participants));
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        flushRequests.incrementAndGet();
+        long sinceLastFlush = System.nanoTime() - lastFlushNanos;
+        if (sinceLastFlush >= FRAME_NANOS) {
+            fxExecutor.execute(this::flush);
+        } else {
+            // Кадр ещё не закончился - откладываем до следующего
+            CompletableFuture.delayedExecutor(FRAME_NANOS - sinceLastFlush, TimeUnit.NANOSECONDS, fxExecutor)
+                    .execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        // Кадр занят любой задачей на FX-потоке, даже если применять нечего:
+        // иначе следующий submit ушёл бы на FX-поток сразу, в том же кадре
+        lastFlushNanos = System.nanoTime();
+        // Сбрасываем флаг до чтения снимка: обновление, пришедшее во время
+        // применения, запланирует следующий кадр, а не потеряется
+        flushScheduled.set(false);
+        Snapshot snapshot = pending.getAndSet(null);
+        if (snapshot == null || !snapshot.room.equals(currentRoom)) return;
+
+        long start = System.nanoTime();
+        apply(snapshot.participants);
+        long elapsed = System.nanoTime() - start;
+
+        applied++;
+        fxTimeNanos += elapsed;
+        maxFxTimeNanos = Math.max(maxFxTimeNanos, elapsed);
+
+        if (onApplied != null) {
+            onApplied.accept(snapshot.room);
+        }
+    }
+
+    private void apply(List<Participant> participants) {
+        Map<String, Participant> next = new LinkedHashMap<>();
+        for (Participant p : participants) {
+            next.put(p.getNickname(), p);
+        }
+
+        // Удаления одним изменением; сравнение по ссылке, у Participant нет equals
+        Set<Participant> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Participant p : items) {
+            if (!next.containsKey(p.getNickname())) {
+                toRemove.add(p);
+            }
+        }
+        if (!toRemove.isEmpty()) {
+            items.removeAll(toRemove);
+            removed += toRemove.size();
+        }
+
+        // Замены только для строк, у которых реально поменялось состояние
+        Set<String> present = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            Participant current = items.get(i);
+            Participant incoming = next.get(current.getNickname());
+            present.add(current.getNickname());
+            if (incoming.isMicOn() != current.isMicOn()) {
+                items.set(i, incoming);
+                updated++;
+            }
+        }
+
+        // Новые участники добавляются в конец одним изменением
+        List<Participant> toAdd = new ArrayList<>();
+        for (Participant p : next.values()) {
+            if (!present.contains(p.getNickname())) {
+                toAdd.add(p);
+            }
+        }
+        if (!toAdd.isEmpty()) {
+            items.addAll(toAdd);
+            added += toAdd.size();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(System.nanoTime() - createdNanos, submitted.get(), flushRequests.get(),
+                applied, added, removed, updated, fxTimeNanos, maxFxTimeNanos);
+    }
+
+    private static class Snapshot {
+        private final String room;
+        private final List<Participant> participants;
+
+        Snapshot(String room, List<Participant> participants) {
+            this.room = room;
+            this.participants = participants;
+        }
+    }
+
+    /**
+     * Снимок статистики модели: сколько обновлений пришло, сколько задач
+     * ушло на FX-поток и сколько времени там заняло применение изменений.
+     */
+    public static class Stats {
+        private final long elapsedNanos;
+        private final long submitted;
+        private final long flushRequests;
+        private final long applied;
+        private final long added;
+        private final long removed;
+        private final long updated;
+        private final long fxTimeNanos;
+        private final long maxFxTimeNanos;
+
+        public Stats(long elapsedNanos, long submitted, long flushRequests, long applied,
+                     long added, long removed, long updated, long fxTimeNanos, long maxFxTimeNanos) {
+            this.elapsedNanos = elapsedNanos;
+            this.submitted = submitted;
+            this.flushRequests = flushRequests;
+            this.applied = applied;
+            this.added = added;
+            this.removed = removed;
+            this.updated = updated;
+            this.fxTimeNanos = fxTimeNanos;
+            this.maxFxTimeNanos = maxFxTimeNanos;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public long getFlushRequests() {
+            return flushRequests;
+        }
+
+        public long getApplied() {
+            return applied;
+        }
+
+        // Снимки, перезаписанные более новыми до применения
+        public long getCoalesced() {
+            return submitted - applied;
+        }
+
+        public long getAdded() {
+            return added;
+        }
+
+        public long getRemoved() {
+            return removed;
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+
+        public long getFxTimeNanos() {
+            return fxTimeNanos;
+        }
+
+        public long getMaxFxTimeNanos() {
+            return maxFxTimeNanos;
+        }
+
+        public double getAverageFxTimeNanos() {
+            return applied == 0 ? 0 : (double) fxTimeNanos / applied;
+        }
+
+        // Входящих обновлений в секунду с момента создания модели
+        public double getUpdateRate() {
+            return elapsedNanos == 0 ? 0 : submitted * 1e9 / elapsedNanos;
+        }
+
+        // Задач на FX-поток в секунду
+        public double getFlushRate() {
+            return elapsedNanos == 0 ? 0 : flushRequests * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("обновлений=%d (%.1f/с), задач FX=%d (%.1f/с), применено=%d, свёрнуто=%d, "
+                            + "+%d -%d ~%d, FX время сред.=%.3f мс, макс.=%.3f мс",
+                    submitted, getUpdateRate(), flushRequests, getFlushRate(), applied, getCoalesced(),
+                    added, removed, updated, getAverageFxTimeNanos() / 1e6, maxFxTimeNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package resh.connect.mycall.client;
+
+import javafx.collections.ListChangeListener;
+import junit.framework.TestCase;
+import resh.connect.mycall.common.model.Participant;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Проверка ParticipantsViewModel без запуска JavaFX:
+ * вместо Platform.runLater задачи складываются в очередь и выполняются вручную.
+ */
+public class ParticipantsViewModelTest extends TestCase {
+
+    private static final String ROOM = "Главная";
+
+    private final ConcurrentLinkedQueue<Runnable> fxQueue = new ConcurrentLinkedQueue<>();
+
+    private ParticipantsViewModel model;
+    private int addedEvents, removedEvents, replacedEvents;
+
+    protected void setUp() {
+        model = new ParticipantsViewModel(fxQueue::add);
+        model.showRoom(ROOM);
+        model.getItems().addListener((ListChangeListener<Participant>) c -> {
+            while (c.next()) {
+                if (c.wasReplaced()) {
+                    replacedEvents++;
+                } else if (c.wasAdded()) {
+                    addedEvents++;
+                } else if (c.wasRemoved()) {
+                    removedEvents++;
+                }
+            }
+        });
+    }
+
+    public void testAppliesMinimalChanges() throws Exception {
+        model.submit(ROOM, roster(500, -1));
+        runFxFrame();
+        assertEquals(500, model.getItems().size());
+        assertEquals(1, addedEvents);
+
+        Participant untouched = model.getItems().get(10);
+
+        // Один участник переключил микрофон, один ушёл, один пришёл
+        List<Participant> next = roster(500, 42);
+        next.remove(100);
+        next.add(new Participant("Новый", true));
+        model.submit(ROOM, next);
+        runFxFrame();
+
+        assertEquals(500, model.getItems().size());
+        assertEquals(1, removedEvents);
+        assertEquals(1, replacedEvents);
+        assertEquals(2, addedEvents);
+        assertSame(untouched, model.getItems().get(10));
+        assertEquals("Новый", model.getItems().get(499).getNickname());
+
+        ParticipantsViewModel.Stats stats = model.getStats();
+        assertEquals(1, stats.getRemoved());
+        assertEquals(1, stats.getUpdated());
+        assertEquals(501, stats.getAdded());
+    }
+
+    public void testCoalescesUpdatesWithinFrame() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            model.submit(ROOM, roster(500, i % 500));
+        }
+        runFxFrame();
+
+        ParticipantsViewModel.Stats stats = model.getStats();
+        assertEquals(1000, stats.getSubmitted());
+        assertEquals(1, stats.getFlushRequests());
+        assertEquals(1, stats.getApplied());
+        assertEquals(999, stats.getCoalesced());
+        // Применён последний снимок: у участника 499 микрофон переключён
+        assertTrue(model.getItems().get(499).isMicOn());
+
+        // Время на FX-потоке измерено и согласовано
+        assertTrue(stats.getFxTimeNanos() > 0);
+        assertTrue(stats.getAverageFxTimeNanos() > 0);
+        assertTrue(stats.getAverageFxTimeNanos() <= stats.getMaxFxTimeNanos());
+        assertTrue(stats.getMaxFxTimeNanos() <= stats.getFxTimeNanos());
+        assertTrue(stats.getUpdateRate() > stats.getFlushRate());
+    }
+
+    public void testFlushRateStaysWithinFrameRate() throws Exception {
+        // Непрерывный поток обновлений в течение полсекунды
+        long burstEnd = System.nanoTime() + 500_000_000L;
+        int i = 0;
+        while (System.nanoTime() < burstEnd) {
+            model.submit(ROOM, roster(100, i++ % 100));
+            Runnable task;
+            while ((task = fxQueue.poll()) != null) {
+                task.run();
+            }
+        }
+        runFxFrame();
+
+        ParticipantsViewModel.Stats stats = model.getStats();
+        assertEquals(i, stats.getSubmitted());
+        // Не больше одной задачи на FX-поток за кадр (~60/с, с запасом на округление)
+        assertTrue("flushRate=" + stats.getFlushRate(), stats.getFlushRate() <= 60 * 1.1);
+        assertTrue(stats.getFlushRequests() > 1);
+        assertTrue(stats.getApplied() <= stats.getFlushRequests());
+        assertEquals(stats.getSubmitted() - stats.getApplied(), stats.getCoalesced());
+        assertTrue(stats.getCoalesced() > 0);
+        assertTrue(stats.getUpdateRate() > stats.getFlushRate());
+
+        assertTrue(stats.getAverageFxTimeNanos() > 0);
+        assertTrue(stats.getAverageFxTimeNanos() <= stats.getMaxFxTimeNanos());
+        assertTrue(stats.getMaxFxTimeNanos() <= stats.getFxTimeNanos());
+    }
+
+    public void testIgnoresSnapshotsOfOtherRooms() throws Exception {
+        model.submit("Комната 1", roster(3, -1));
+        assertTrue(fxQueue.isEmpty());
+
+        model.submit(ROOM, roster(3, -1));
+        model.showRoom("Комната 2");
+        runFxFrame();
+        assertTrue(model.getItems().isEmpty());
+    }
+
+    public void testEmptyFlushAlsoThrottlesNextFrame() throws Exception {
+        // Снимок сброшен сменой комнаты: задача на FX-потоке ничего не применяет
+        model.submit(ROOM, roster(3, -1));
+        model.showRoom("Комната 2");
+        runFxFrame();
+        assertEquals(0, model.getStats().getApplied());
+
+        // Следующий снимок в том же кадре откладывается, а не уходит на FX-поток сразу
+        model.showRoom(ROOM);
+        model.submit(ROOM, roster(3, -1));
+        assertTrue(fxQueue.isEmpty());
+
+        runFxFrame();
+        assertEquals(3, model.getItems().size());
+        assertEquals(1, model.getStats().getApplied());
+    }
+
+    // Список участников; у участника с индексом flipped микрофон переключён
+    private static List<Participant> roster(int size, int flipped) {
+        List<Participant> result = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            boolean micOn = i % 2 == 0;
+            result.add(new Participant("Участник " + i, i == flipped ? !micOn : micOn));
+        }
+        return result;
+    }
+
+    // Ждём отложенную на следующий кадр задачу и выполняем очередь FX-потока
+    private void runFxFrame() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (fxQueue.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Runnable task;
+        while ((task = fxQueue.poll()) != null) {
+            task.run();
+        }
+    }
+}
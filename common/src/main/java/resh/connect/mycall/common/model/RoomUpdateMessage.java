@@ -4,12 +4,20 @@ import java.util.List;
 
 public class RoomUpdateMessage {
     private String type = "room_update";
+    private String room;
     private List<Participant> participants;
 
     public RoomUpdateMessage(List<Participant> participants) {
         this.participants = participants;
     }
 
+    // room нужен наблюдателям: при смене комнаты отбрасывают обновления старой
+    public RoomUpdateMessage(String room, List<Participant> participants) {
+        this.room = room;
+        this.participants = participants;
+    }
+
     public String getType() { return type; }
+    public String getRoom() { return room; }
     public List<Participant> getParticipants() { return participants; }
 }
@@ -0,0 +1,75 @@
+package resh.connect.mycall.common.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сжатие WebSocket-кадров deflate с общим словарём.
+ * Словарь содержит повторяющиеся фрагменты JSON из RoomUpdateMessage,
+ * поэтому даже первый кадр сжимается хорошо. Клиент и сервер обязаны
+ * использовать один и тот же словарь: любое его изменение - смена формата кадров.
+ */
+public class FrameCompression {
+
+    // Клиент включает сжатие при handshake: /ws?compression=deflate-dict
+    public static final String QUERY_PARAM = "compression";
+    public static final String ENCODING = "deflate-dict";
+
+    // Самые частые фрагменты ставим в конец: deflate дешевле кодирует близкие ссылки
+    private static final byte[] DICTIONARY = (
+            "{\"type\":\"heartbeat\",\"clientId\":\"\"}"
+                    + "{\"type\":\"room_update\",\"room\":null,\"participants\":[]}"
+                    + "{\"nickname\":\"\",\"micOn\":true},"
+                    + "{\"nickname\":\"\",\"micOn\":false},"
+                    + "{\"type\":\"room_update\",\"room\":\"\",\"participants\":[{\"nickname\":\""
+    ).getBytes(StandardCharsets.UTF_8);
+
+    private static final int BUFFER_SIZE = 4096;
+
+    // Сжатие массива байт с общим словарём
+    public static byte[] compress(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int len = deflater.deflate(buffer);
+                out.write(buffer, 0, len);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Распаковка кадра, сжатого методом compress
+    public static byte[] decompress(byte[] data) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int len = inflater.inflate(buffer);
+                if (len == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY);
+                    } else if (!inflater.finished() && inflater.needsInput()) {
+                        throw new DataFormatException("Неполный сжатый кадр");
+                    }
+                    continue;
+                }
+                out.write(buffer, 0, len);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package resh.connect.mycall.common.util;
+
+import junit.framework.TestCase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Проверка сжатия кадров с общим словарём.
+ */
+public class FrameCompressionTest extends TestCase {
+
+    public void testRoundTripRoomUpdate() throws Exception {
+        byte[] frame = roomUpdate(300).getBytes(StandardCharsets.UTF_8);
+
+        byte[] compressed = FrameCompression.compress(frame);
+
+        assertTrue(compressed.length < frame.length / 5);
+        assertTrue(Arrays.equals(frame, FrameCompression.decompress(compressed)));
+    }
+
+    public void testRoundTripEmptyAndBinary() throws Exception {
+        byte[] empty = new byte[0];
+        assertTrue(Arrays.equals(empty, FrameCompression.decompress(FrameCompression.compress(empty))));
+
+        byte[] random = new byte[10_000];
+        new Random(42).nextBytes(random);
+        assertTrue(Arrays.equals(random, FrameCompression.decompress(FrameCompression.compress(random))));
+    }
+
+    public void testCompressedFrameRequiresDictionary() throws Exception {
+        byte[] compressed = FrameCompression.compress(roomUpdate(10).getBytes(StandardCharsets.UTF_8));
+
+        // Без словаря распаковать нельзя - decompress обязан подставить его сам
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            assertEquals(0, inflater.inflate(new byte[1024]));
+            assertTrue(inflater.needsDictionary());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public void testTruncatedFrameIsRejected() {
+        byte[] compressed = FrameCompression.compress(roomUpdate(50).getBytes(StandardCharsets.UTF_8));
+        try {
+            FrameCompression.decompress(Arrays.copyOf(compressed, compressed.length / 2));
+            fail("Обрезанный кадр должен отклоняться");
+        } catch (DataFormatException expected) {
+        }
+    }
+
+    private static String roomUpdate(int participants) {
+        StringBuilder json = new StringBuilder("{\"type\":\"room_update\",\"room\":\"Главная\",\"participants\":[");
+        for (int i = 0; i < participants; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"nickname\":\"Участник ").append(i).append("\",\"micOn\":").append(i % 3 == 0).append('}');
+        }
+        return json.append("]}").toString();
+    }
+}
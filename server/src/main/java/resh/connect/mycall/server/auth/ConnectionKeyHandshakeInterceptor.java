@@ -0,0 +1,64 @@
+package resh.connect.mycall.server.auth;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * Проверяет ключ подключения при handshake. Невалидный ключ отклоняется
+ * ответом 401 до создания WebSocket-сессии.
+ * Ключ передаётся в заголовке X-Connection-Key или параметре запроса key.
+ */
+public class ConnectionKeyHandshakeInterceptor implements HandshakeInterceptor {
+
+    public static final String KEY_HEADER = "X-Connection-Key";
+    public static final String KEY_PARAM = "key";
+
+    // Атрибут сессии с clientId, к которому привязан ключ (если привязан)
+    public static final String BOUND_CLIENT_ID_ATTRIBUTE = "mycall.boundClientId";
+
+    private final ConnectionKeyVerifier verifier;
+
+    public ConnectionKeyHandshakeInterceptor(ConnectionKeyVerifier verifier) {
+        this.verifier = verifier;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        ConnectionKeyVerifier.VerifiedKey verified = verifier.verify(extractKey(request));
+        if (verified == null) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        if (verified.getClientId() != null) {
+            attributes.put(BOUND_CLIENT_ID_ATTRIBUTE, verified.getClientId());
+        }
+        return true;
+    }
+
+    /**
+     * Можно ли сессии действовать от имени clientId: да, если ключ не привязан
+     * к клиенту или привязан именно к этому clientId.
+     */
+    public static boolean isClientIdAllowed(Map<String, Object> attributes, String clientId) {
+        Object boundClientId = attributes.get(BOUND_CLIENT_ID_ATTRIBUTE);
+        return boundClientId == null || boundClientId.equals(clientId);
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private String extractKey(ServerHttpRequest request) {
+        String key = request.getHeaders().getFirst(KEY_HEADER);
+        if (key != null) return key;
+        return UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst(KEY_PARAM);
+    }
+}
@@ -0,0 +1,45 @@
+package resh.connect.mycall.server.auth;
+
+import java.time.Instant;
+
+/**
+ * Выпуск ключей подключения из командной строки.
+ * Секрет берётся из переменной окружения MYCALL_WS_AUTH_SECRET - той же, что читает сервер.
+ *
+ * java -Dloader.main=resh.connect.mycall.server.auth.ConnectionKeyTool \
+ *      -cp server-0.0.1.jar org.springframework.boot.loader.launch.PropertiesLauncher <clientId|-> [ttlSeconds]
+ */
+public class ConnectionKeyTool {
+
+    static final String SECRET_ENV = "MYCALL_WS_AUTH_SECRET";
+    static final long DEFAULT_TTL_SECONDS = 24 * 60 * 60;
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Использование: ConnectionKeyTool <clientId|-> [ttlSeconds]");
+            System.err.println("  clientId   - клиент, к которому привязан ключ; '-' - ключ без привязки");
+            System.err.println("  ttlSeconds - срок действия, по умолчанию " + DEFAULT_TTL_SECONDS);
+            System.exit(2);
+        }
+
+        String secret = System.getenv(SECRET_ENV);
+        if (secret == null || secret.isEmpty()) {
+            System.err.println("Не задана переменная окружения " + SECRET_ENV);
+            System.exit(1);
+        }
+
+        long ttlSeconds;
+        try {
+            ttlSeconds = args.length == 2 ? Long.parseLong(args[1]) : DEFAULT_TTL_SECONDS;
+            if (ttlSeconds <= 0) throw new NumberFormatException();
+        } catch (NumberFormatException e) {
+            System.err.println("Некорректный срок действия: " + args[1]);
+            System.exit(2);
+            return;
+        }
+
+        String clientId = "-".equals(args[0]) ? null : args[0];
+        long expiresAt = Instant.now().getEpochSecond() + ttlSeconds;
+        System.out.println(new ConnectionKeyVerifier(secret, 0).issue(clientId, expiresAt));
+    }
+}
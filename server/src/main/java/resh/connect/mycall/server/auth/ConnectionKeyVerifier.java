@@ -0,0 +1,182 @@
+package resh.connect.mycall.server.auth;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Проверка ключей подключения без обращения к БД.
+ * Формат ключа: base64url(clientId).expiresAtEpochSec.base64url(HMAC-SHA256)
+ * Пустой clientId означает ключ, не привязанный к конкретному клиенту.
+ * Успешные проверки кэшируются на короткое время, чтобы массовые
+ * переподключения не пересчитывали HMAC для одних и тех же ключей.
+ * Невалидные ключи не кэшируются: поток мусора не должен вытеснять рабочие записи.
+ */
+public class ConnectionKeyVerifier {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    static final int MAX_CACHE_SIZE = 10_000;
+    // Ключ с clientId до ~250 байт; длиннее - заведомо мусор, не считаем HMAC
+    static final int MAX_KEY_LENGTH = 512;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec secretKey;
+    private final long cacheTtlMs;
+    private final LongSupplier clock;
+
+    // Mac не потокобезопасен, поэтому держим экземпляр на поток
+    private final ThreadLocal<Mac> mac;
+
+    // key -> успешно проверенный ключ
+    private final Map<String, CachedVerification> cache = new ConcurrentHashMap<>();
+
+    public ConnectionKeyVerifier(String secret, long cacheTtlMs) {
+        this(secret, cacheTtlMs, System::currentTimeMillis);
+    }
+
+    // Часы подменяются в тестах
+    ConnectionKeyVerifier(String secret, long cacheTtlMs, LongSupplier clock) {
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("Секрет для ключей подключения не задан");
+        }
+        this.secretKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.cacheTtlMs = cacheTtlMs;
+        this.clock = clock;
+        this.mac = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * Выпуск ключа подключения. clientId может быть null - тогда ключ не привязан к клиенту.
+     */
+    public String issue(String clientId, long expiresAtEpochSec) {
+        String encodedClientId = clientId == null ? "" : ENCODER.encodeToString(clientId.getBytes(StandardCharsets.UTF_8));
+        String signedPart = encodedClientId + "." + expiresAtEpochSec;
+        return signedPart + "." + ENCODER.encodeToString(sign(signedPart));
+    }
+
+    /**
+     * Проверка ключа. Возвращает null, если ключ некорректен, подпись не совпала
+     * или срок действия истёк.
+     */
+    public VerifiedKey verify(String key) {
+        if (key == null || key.isEmpty() || key.length() > MAX_KEY_LENGTH) return null;
+
+        long now = clock.getAsLong();
+        CachedVerification cached = cache.get(key);
+        if (cached != null && cached.cachedUntil >= now) {
+            // Срок действия проверяем всегда: кэш не должен продлевать жизнь ключа
+            if (!isExpired(cached.result, now)) return cached.result;
+            cache.remove(key, cached);
+            return null;
+        }
+
+        VerifiedKey verified = parseAndCheckSignature(key);
+        if (verified == null || isExpired(verified, now)) {
+            if (cached != null) cache.remove(key, cached);
+            return null;
+        }
+        // Запись живёт не дольше самого ключа
+        long cachedUntil = Math.min(now + cacheTtlMs, verified.getExpiresAtEpochSec() * 1000);
+        putInCache(key, new CachedVerification(verified, cachedUntil), now);
+        return verified;
+    }
+
+    private static boolean isExpired(VerifiedKey verified, long now) {
+        return verified.getExpiresAtEpochSec() * 1000 < now;
+    }
+
+    // Размер кэша (для тестов)
+    int cacheSize() {
+        return cache.size();
+    }
+
+    private VerifiedKey parseAndCheckSignature(String key) {
+        String[] parts = key.split("\\.", -1);
+        if (parts.length != 3) return null;
+
+        try {
+            String signedPart = parts[0] + "." + parts[1];
+            byte[] signature = DECODER.decode(parts[2]);
+            if (!MessageDigest.isEqual(sign(signedPart), signature)) return null;
+
+            long expiresAt = Long.parseLong(parts[1]);
+            String clientId = parts[0].isEmpty() ? null : new String(DECODER.decode(parts[0]), StandardCharsets.UTF_8);
+            return new VerifiedKey(clientId, expiresAt);
+        } catch (IllegalArgumentException e) {
+            // Некорректный base64 или число
+            return null;
+        }
+    }
+
+    private void putInCache(String key, CachedVerification verification, long now) {
+        if (cache.size() >= MAX_CACHE_SIZE) {
+            cache.values().removeIf(v -> v.cachedUntil < now);
+            if (cache.size() >= MAX_CACHE_SIZE) {
+                // Вытесняем десятую часть самых старых записей, остальные сохраняем
+                evictOldest(MAX_CACHE_SIZE / 10);
+            }
+        }
+        cache.put(key, verification);
+    }
+
+    private void evictOldest(int count) {
+        cache.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().cachedUntil))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(cache::remove);
+    }
+
+    private byte[] sign(String data) {
+        return mac.get().doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac instance = Mac.getInstance(ALGORITHM);
+            instance.init(secretKey);
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось инициализировать " + ALGORITHM, e);
+        }
+    }
+
+    private static class CachedVerification {
+        private final VerifiedKey result;
+        private final long cachedUntil;
+
+        CachedVerification(VerifiedKey result, long cachedUntil) {
+            this.result = result;
+            this.cachedUntil = cachedUntil;
+        }
+    }
+
+    public static class VerifiedKey {
+        private final String clientId;
+        private final long expiresAtEpochSec;
+
+        public VerifiedKey(String clientId, long expiresAtEpochSec) {
+            this.clientId = clientId;
+            this.expiresAtEpochSec = expiresAtEpochSec;
+        }
+
+        // null, если ключ не привязан к клиенту
+        public String getClientId() {
+            return clientId;
+        }
+
+        public long getExpiresAtEpochSec() {
+            return expiresAtEpochSec;
+        }
+    }
+}
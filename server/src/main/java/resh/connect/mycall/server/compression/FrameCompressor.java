@@ -0,0 +1,106 @@
+package resh.connect.mycall.server.compression;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.util.UriComponentsBuilder;
+import resh.connect.mycall.common.util.FrameCompression;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сжимает исходящие кадры, если они больше порога, и публикует метрики
+ * степени сжатия и процессорного времени.
+ * Мелкие кадры (heartbeat, небольшие комнаты) отправляются как есть.
+ */
+public class FrameCompressor {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final boolean enabled;
+    private final int thresholdBytes;
+    private final boolean cpuTimeSupported;
+
+    private final DistributionSummary compressionRatio;
+    private final Timer compressionCpuTime;
+    private final Counter bytesIn;
+    private final Counter bytesOut;
+    private final Counter skippedFrames;
+    private final Counter ineffectiveFrames;
+
+    public FrameCompressor(boolean enabled, int thresholdBytes, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.thresholdBytes = thresholdBytes;
+        this.cpuTimeSupported = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported();
+
+        this.compressionRatio = DistributionSummary.builder("mycall.ws.compression.ratio")
+                .description("Отношение исходного размера к сжатому для кадров, отправленных сжатыми")
+                .register(meterRegistry);
+        this.compressionCpuTime = Timer.builder("mycall.ws.compression.cpu")
+                .description("Процессорное время сжатия одного кадра, включая неудачные попытки")
+                .register(meterRegistry);
+        this.bytesIn = Counter.builder("mycall.ws.compression.bytes.in")
+                .baseUnit("bytes")
+                .description("Исходный размер кадров, отправленных сжатыми (один раз на рассылку)")
+                .register(meterRegistry);
+        this.bytesOut = Counter.builder("mycall.ws.compression.bytes.out")
+                .baseUnit("bytes")
+                .description("Размер кадров, отправленных сжатыми (один раз на рассылку)")
+                .register(meterRegistry);
+        this.skippedFrames = Counter.builder("mycall.ws.compression.skipped")
+                .description("Кадры меньше порога, отправленные без сжатия")
+                .register(meterRegistry);
+        this.ineffectiveFrames = Counter.builder("mycall.ws.compression.ineffective")
+                .description("Кадры, которые не уменьшились при сжатии и отправлены как есть")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Запросил ли клиент сжатие кадров при handshake (/ws?compression=deflate-dict).
+     */
+    public static boolean isRequested(URI uri) {
+        if (uri == null) return false;
+        String value = UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst(FrameCompression.QUERY_PARAM);
+        return FrameCompression.ENCODING.equals(value);
+    }
+
+    /**
+     * Возвращает сжатый кадр или null, если сжатие выключено,
+     * кадр меньше порога либо сжатие не дало выигрыша.
+     */
+    public byte[] compress(byte[] payload) {
+        if (!enabled) return null;
+        if (payload.length < thresholdBytes) {
+            skippedFrames.increment();
+            return null;
+        }
+
+        long start = currentCpuTime();
+        byte[] compressed = FrameCompression.compress(payload);
+        compressionCpuTime.record(currentCpuTime() - start, TimeUnit.NANOSECONDS);
+
+        if (compressed.length >= payload.length) {
+            // Уйдёт текстовый кадр - в байты и степень сжатия не попадает
+            ineffectiveFrames.increment();
+            return null;
+        }
+
+        bytesIn.increment(payload.length);
+        bytesOut.increment(compressed.length);
+        compressionRatio.record((double) payload.length / compressed.length);
+        return compressed;
+    }
+
+    private long currentCpuTime() {
+        // Если JVM не умеет мерить CPU потока, используем настенное время
+        return cpuTimeSupported ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
@@ -1,20 +1,76 @@
 package resh.connect.mycall.server.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import resh.connect.mycall.server.auth.ConnectionKeyHandshakeInterceptor;
+import resh.connect.mycall.server.auth.ConnectionKeyVerifier;
+import resh.connect.mycall.server.compression.FrameCompressor;
 import resh.connect.mycall.server.handler.WebSocketHandler;
 
+import java.util.List;
+
 @Configuration
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
-    private final WebSocketHandler webSocketHandler = new WebSocketHandler();
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final boolean compressionEnabled;
+    private final String[] allowedOrigins;
+    private final WebSocketHandler webSocketHandler;
+    private final ConnectionKeyHandshakeInterceptor connectionKeyInterceptor;
+
+    public WebSocketConfig(MeterRegistry meterRegistry,
+                           @Value("${mycall.ws.compression.enabled:true}") boolean compressionEnabled,
+                           @Value("${mycall.ws.compression.threshold-bytes:1024}") int compressionThresholdBytes,
+                           @Value("${mycall.ws.allowed-origins:}") String[] allowedOrigins,
+                           @Value("${mycall.ws.auth.secret}") String authSecret,
+                           @Value("${mycall.ws.auth.cache-ttl-ms:30000}") long authCacheTtlMs) {
+        this.compressionEnabled = compressionEnabled;
+        this.allowedOrigins = allowedOrigins;
+        this.webSocketHandler = new WebSocketHandler(
+                new FrameCompressor(compressionEnabled, compressionThresholdBytes, meterRegistry));
+        this.connectionKeyInterceptor = new ConnectionKeyHandshakeInterceptor(
+                new ConnectionKeyVerifier(authSecret, authCacheTtlMs));
+    }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(webSocketHandler, "/ws")
-                .setAllowedOrigins("*"); // по необходимости ограничьте домены
+                .setHandshakeHandler(new CompressionAwareHandshakeHandler(compressionEnabled))
+                .addInterceptors(connectionKeyInterceptor)
+                .setAllowedOrigins(allowedOrigins);
+    }
+
+    /**
+     * Для соединений, запросивших собственное сжатие кадров, отказываемся от
+     * permessage-deflate контейнера: повторное сжатие уже сжатых данных только
+     * тратит CPU. Остальные клиенты сохраняют сжатие контейнера.
+     */
+    private static class CompressionAwareHandshakeHandler extends DefaultHandshakeHandler {
+
+        private final boolean compressionEnabled;
+
+        CompressionAwareHandshakeHandler(boolean compressionEnabled) {
+            this.compressionEnabled = compressionEnabled;
+        }
+
+        @Override
+        protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                     List<WebSocketExtension> requestedExtensions,
+                                                                     List<WebSocketExtension> supportedExtensions) {
+            List<WebSocketExtension> extensions = super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+            if (!compressionEnabled || !FrameCompressor.isRequested(request.getURI())) return extensions;
+            return extensions.stream()
+                    .filter(ext -> !PERMESSAGE_DEFLATE.equalsIgnoreCase(ext.getName()))
+                    .toList();
+        }
     }
 }
@@ -1,10 +1,15 @@
 package resh.connect.mycall.server.handler;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.web.socket.*;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 import resh.connect.mycall.common.model.Participant;
 import resh.connect.mycall.common.model.RoomUpdateMessage;
 import resh.connect.mycall.common.util.JsonUtils;
+import resh.connect.mycall.server.auth.ConnectionKeyHandshakeInterceptor;
+import resh.connect.mycall.server.compression.FrameCompressor;
 
 import java.util.*;
 import java.util.concurrent.*;
@@ -12,27 +17,47 @@ import java.util.concurrent.*;
 /**
  * WebSocketHandler для управления подключениями и комнатами
  * с поддержкой heartbeat и оповещением участников о событиях.
+ * Кроме участников, комнату можно "смотреть" (watch): наблюдатель получает
+ * список участников и его обновления, но сам участником не считается.
  */
 public class WebSocketHandler extends TextWebSocketHandler {
 
+    private static final Logger log = LoggerFactory.getLogger(WebSocketHandler.class);
+
     private static final long HEARTBEAT_TIMEOUT_MS = 15000;
 
+    // Лимиты отправки: медленный получатель не должен задерживать рассылку остальным
+    private static final int SEND_TIME_LIMIT_MS = 5000;
+    private static final int SEND_BUFFER_SIZE_LIMIT = 512 * 1024;
+
+    // sessionId -> сессия с потокобезопасной отправкой
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
     // clientId -> ClientSession
     private final Map<String, ClientSession> clients = new ConcurrentHashMap<>();
 
     // roomName -> множество клиентов (сессий)
     private final Map<String, Set<ClientSession>> rooms = new ConcurrentHashMap<>();
 
+    // roomName -> наблюдатели комнаты
+    private final Map<String, Set<RoomWatcher>> roomWatchers = new ConcurrentHashMap<>();
+
+    // sessionId -> наблюдатель (одно соединение смотрит не более одной комнаты)
+    private final Map<String, RoomWatcher> watchersBySession = new ConcurrentHashMap<>();
+
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
-    public WebSocketHandler() {
+    private final FrameCompressor frameCompressor;
+
+    public WebSocketHandler(FrameCompressor frameCompressor) {
+        this.frameCompressor = frameCompressor;
         // Запуск задачи проверки heartbeat каждые 5 секунд
         scheduler.scheduleAtFixedRate(this::checkHeartbeats, 0, 5, TimeUnit.SECONDS);
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
-        // Можно логировать подключение или делать инициализацию
+        concurrent(session);
     }
 
     @Override
@@ -43,28 +68,98 @@ public class WebSocketHandler extends TextWebSocketHandler {
         Map<String, String> msg = JsonUtils.fromJson(payload, Map.class);
 
         String type = msg.get("type");
+        String clientId = msg.get("clientId");
+        // watch/unwatch не несут clientId, проверяем только join и heartbeat
+        boolean carriesClientId = "join".equals(type) || "heartbeat".equals(type);
+        if (carriesClientId && !ConnectionKeyHandshakeInterceptor.isClientIdAllowed(session.getAttributes(), clientId)) {
+            // Ключ выдан другому клиенту - не даём занять чужой clientId
+            session.close(CloseStatus.POLICY_VIOLATION);
+            return;
+        }
+
         if ("join".equals(type)) {
-            String clientId = msg.get("clientId");
             String room = msg.get("room");
-            joinClient(session, clientId, room);
+            joinClient(concurrent(session), clientId, room, FrameCompressor.isRequested(session.getUri()));
         } else if ("heartbeat".equals(type)) {
-            String clientId = msg.get("clientId");
             heartbeat(clientId);
+        } else if ("watch".equals(type)) {
+            String room = msg.get("room");
+            watchRoom(concurrent(session), room, FrameCompressor.isRequested(session.getUri()));
+        } else if ("unwatch".equals(type)) {
+            unwatchRoom(session);
         }
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        unwatchRoom(session);
         removeClient(session);
+        sessions.remove(session.getId());
+    }
+
+    /**
+     * Снимок наблюдателю и рассылки могут идти из разных потоков одновременно,
+     * а WebSocketSession не допускает параллельной отправки - оборачиваем сессию.
+     */
+    private WebSocketSession concurrent(WebSocketSession session) {
+        return sessions.computeIfAbsent(session.getId(),
+                id -> new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_SIZE_LIMIT));
     }
 
-    private void joinClient(WebSocketSession session, String clientId, String room) throws Exception {
-        ClientSession client = new ClientSession(clientId, room, session);
+    private void joinClient(WebSocketSession session, String clientId, String room, boolean compression) throws Exception {
+        ClientSession client = new ClientSession(clientId, room, session, compression);
         clients.put(clientId, client);
         rooms.computeIfAbsent(room, k -> ConcurrentHashMap.newKeySet()).add(client);
         sendRoomUpdate(room);
     }
 
+    /**
+     * Подписка соединения на комнату без входа в неё. Предыдущая подписка
+     * снимается, снимок списка участников уходит только этому наблюдателю.
+     */
+    private void watchRoom(WebSocketSession session, String room, boolean compression) throws Exception {
+        if (room == null) return;
+        unwatchRoom(session);
+        RoomWatcher watcher = new RoomWatcher(room, session, compression);
+        watchersBySession.put(session.getId(), watcher);
+        roomWatchers.compute(room, (k, watchers) -> {
+            if (watchers == null) watchers = ConcurrentHashMap.newKeySet();
+            watchers.add(watcher);
+            return watchers;
+        });
+        // Участник комнаты и так получает её обновления - второй снимок не нужен
+        if (!isParticipant(session, room)) {
+            sendRoomSnapshot(watcher);
+        }
+    }
+
+    private boolean isParticipant(WebSocketSession session, String room) {
+        return rooms.getOrDefault(room, Set.of()).stream()
+                .anyMatch(c -> c.getSession().getId().equals(session.getId()));
+    }
+
+    private void unwatchRoom(WebSocketSession session) {
+        RoomWatcher watcher = watchersBySession.get(session.getId());
+        if (watcher != null) {
+            removeWatcher(watcher);
+        }
+    }
+
+    private void removeWatcher(RoomWatcher watcher) {
+        // Удаляем именно этого наблюдателя: соединение могло уже переключиться на другую комнату
+        watchersBySession.remove(watcher.getSession().getId(), watcher);
+        // Пустое множество убираем, иначе watch по случайным именам раздувает карту
+        roomWatchers.computeIfPresent(watcher.getRoom(), (k, watchers) -> {
+            watchers.remove(watcher);
+            return watchers.isEmpty() ? null : watchers;
+        });
+    }
+
+    // Комнаты, у которых есть наблюдатели (для тестов)
+    Set<String> watchedRooms() {
+        return roomWatchers.keySet();
+    }
+
     private void heartbeat(String clientId) {
         ClientSession client = clients.get(clientId);
         if (client != null) {
@@ -96,7 +191,7 @@ public class WebSocketHandler extends TextWebSocketHandler {
 
     private void removeClient(WebSocketSession session) {
         Optional<ClientSession> toRemove = clients.values().stream()
-                .filter(c -> c.getSession().equals(session))
+                .filter(c -> c.getSession().getId().equals(session.getId()))
                 .findFirst();
         toRemove.ifPresent(client -> {
             clients.remove(client.getClientId());
@@ -112,21 +207,70 @@ public class WebSocketHandler extends TextWebSocketHandler {
     }
 
     private void sendRoomUpdate(String room) throws Exception {
-        Set<ClientSession> roomClients = rooms.get(room);
-        if (roomClients == null) return;
+        Set<ClientSession> roomClients = rooms.getOrDefault(room, Set.of());
+        Set<RoomWatcher> watchers = roomWatchers.getOrDefault(room, Set.of());
+        if (roomClients.isEmpty() && watchers.isEmpty()) return;
+
+        TextMessage textMessage = buildRoomUpdate(room);
+
+        // Сжимаем один раз на всю рассылку, а не для каждого получателя
+        byte[] compressed = null;
+        if (frameCompressor.isEnabled()
+                && (roomClients.stream().anyMatch(ClientSession::isCompression)
+                || watchers.stream().anyMatch(RoomWatcher::isCompression))) {
+            compressed = frameCompressor.compress(textMessage.asBytes());
+        }
+
+        Set<String> participantSessionIds = new HashSet<>();
+        for (ClientSession client : roomClients) {
+            participantSessionIds.add(client.getSession().getId());
+            send(client.getSession(), client.isCompression(), textMessage, compressed);
+        }
+        for (RoomWatcher watcher : watchers) {
+            // Соединение, которое и вошло в комнату, и смотрит её, получает кадр один раз
+            if (participantSessionIds.contains(watcher.getSession().getId())) continue;
+            if (!send(watcher.getSession(), watcher.isCompression(), textMessage, compressed)) {
+                removeWatcher(watcher);
+            }
+        }
+    }
 
+    private void sendRoomSnapshot(RoomWatcher watcher) throws Exception {
+        TextMessage textMessage = buildRoomUpdate(watcher.getRoom());
+        byte[] compressed = watcher.isCompression() ? frameCompressor.compress(textMessage.asBytes()) : null;
+        if (!send(watcher.getSession(), watcher.isCompression(), textMessage, compressed)) {
+            removeWatcher(watcher);
+        }
+    }
+
+    private TextMessage buildRoomUpdate(String room) throws Exception {
         List<Participant> participants = new ArrayList<>();
-        for (ClientSession c : roomClients) {
+        for (ClientSession c : rooms.getOrDefault(room, Set.of())) {
             participants.add(new Participant(c.getClientId(), false)); // micOn можно доработать
         }
 
-        RoomUpdateMessage message = new RoomUpdateMessage(participants);
+        RoomUpdateMessage message = new RoomUpdateMessage(room, participants);
 
         // Используем JsonUtils для сериализации сообщения
-        String jsonMessage = JsonUtils.toJson(message);
+        return new TextMessage(JsonUtils.toJson(message));
+    }
 
-        for (ClientSession client : roomClients) {
-            client.getSession().sendMessage(new TextMessage(jsonMessage));
+    /**
+     * Отправка одному получателю. Ошибка не прерывает рассылку остальным
+     * и не уходит в обработчик сообщения того, кто её вызвал.
+     */
+    private boolean send(WebSocketSession session, boolean compression, TextMessage textMessage, byte[] compressed) {
+        try {
+            if (compressed != null && compression) {
+                // BinaryMessage лишь оборачивает массив, копирования нет
+                session.sendMessage(new BinaryMessage(compressed));
+            } else {
+                session.sendMessage(textMessage);
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("Не удалось отправить обновление комнаты сессии {}: {}", session.getId(), e.getMessage());
+            return false;
         }
     }
 
@@ -134,12 +278,14 @@ public class WebSocketHandler extends TextWebSocketHandler {
         private final String clientId;
         private final String room;
         private final WebSocketSession session;
+        private final boolean compression;
         private volatile long lastHeartbeat;
 
-        public ClientSession(String clientId, String room, WebSocketSession session) {
+        public ClientSession(String clientId, String room, WebSocketSession session, boolean compression) {
             this.clientId = clientId;
             this.room = room;
             this.session = session;
+            this.compression = compression;
             this.lastHeartbeat = System.currentTimeMillis();
         }
 
@@ -155,6 +301,10 @@ public class WebSocketHandler extends TextWebSocketHandler {
             return session;
         }
 
+        public boolean isCompression() {
+            return compression;
+        }
+
         public long getLastHeartbeat() {
             return lastHeartbeat;
         }
@@ -163,4 +313,28 @@ public class WebSocketHandler extends TextWebSocketHandler {
             this.lastHeartbeat = ts;
         }
     }
+
+    private static class RoomWatcher {
+        private final String room;
+        private final WebSocketSession session;
+        private final boolean compression;
+
+        public RoomWatcher(String room, WebSocketSession session, boolean compression) {
+            this.room = room;
+            this.session = session;
+            this.compression = compression;
+        }
+
+        public String getRoom() {
+            return room;
+        }
+
+        public WebSocketSession getSession() {
+            return session;
+        }
+
+        public boolean isCompression() {
+            return compression;
+        }
+    }
 }
@@ -0,0 +1,80 @@
+package resh.connect.mycall.server.auth;
+
+import junit.framework.TestCase;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Проверка handshake: отказ без валидного ключа и привязка clientId к сессии.
+ */
+public class ConnectionKeyHandshakeInterceptorTest extends TestCase {
+
+    private final ConnectionKeyVerifier verifier = new ConnectionKeyVerifier("test-secret", 30_000);
+    private final ConnectionKeyHandshakeInterceptor interceptor = new ConnectionKeyHandshakeInterceptor(verifier);
+
+    public void testMissingKeyIsRejectedWith401() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Map<String, Object> attributes = new HashMap<>();
+
+        assertFalse(handshake(new MockHttpServletRequest("GET", "/ws"), response, attributes));
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+        assertTrue(attributes.isEmpty());
+    }
+
+    public void testInvalidKeyIsRejectedWith401() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws");
+        request.setQueryString("key=garbage");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(handshake(request, response, new HashMap<>()));
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+    }
+
+    public void testKeyFromQueryBindsClientId() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws");
+        request.setQueryString("key=" + verifier.issue("Alice", expiresAt()));
+        Map<String, Object> attributes = new HashMap<>();
+
+        assertTrue(handshake(request, new MockHttpServletResponse(), attributes));
+        assertEquals("Alice", attributes.get(ConnectionKeyHandshakeInterceptor.BOUND_CLIENT_ID_ATTRIBUTE));
+    }
+
+    public void testKeyFromHeaderWithoutBinding() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws");
+        request.addHeader(ConnectionKeyHandshakeInterceptor.KEY_HEADER, verifier.issue(null, expiresAt()));
+        Map<String, Object> attributes = new HashMap<>();
+
+        assertTrue(handshake(request, new MockHttpServletResponse(), attributes));
+        assertFalse(attributes.containsKey(ConnectionKeyHandshakeInterceptor.BOUND_CLIENT_ID_ATTRIBUTE));
+    }
+
+    public void testBoundClientIdMismatchIsNotAllowed() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(ConnectionKeyHandshakeInterceptor.BOUND_CLIENT_ID_ATTRIBUTE, "Alice");
+
+        assertTrue(ConnectionKeyHandshakeInterceptor.isClientIdAllowed(attributes, "Alice"));
+        assertFalse(ConnectionKeyHandshakeInterceptor.isClientIdAllowed(attributes, "Bob"));
+        assertFalse(ConnectionKeyHandshakeInterceptor.isClientIdAllowed(attributes, null));
+    }
+
+    public void testUnboundKeyAllowsAnyClientId() {
+        assertTrue(ConnectionKeyHandshakeInterceptor.isClientIdAllowed(new HashMap<>(), "Bob"));
+    }
+
+    private boolean handshake(MockHttpServletRequest request, MockHttpServletResponse response,
+                              Map<String, Object> attributes) {
+        return interceptor.beforeHandshake(new ServletServerHttpRequest(request),
+                new ServletServerHttpResponse(response), null, attributes);
+    }
+
+    private static long expiresAt() {
+        return Instant.now().getEpochSecond() + 60;
+    }
+}
@@ -0,0 +1,157 @@
+package resh.connect.mycall.server.auth;
+
+import junit.framework.TestCase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Проверка подписи, срока действия и кэша ключей подключения.
+ */
+public class ConnectionKeyVerifierTest extends TestCase {
+
+    private static final String SECRET = "test-secret";
+    private static final long CACHE_TTL_MS = 30_000;
+
+    // Текущее время в мс, управляется тестом
+    private long now = 1_700_000_000_000L;
+
+    private ConnectionKeyVerifier verifier;
+
+    protected void setUp() {
+        verifier = new ConnectionKeyVerifier(SECRET, CACHE_TTL_MS, () -> now);
+    }
+
+    public void testValidBoundKey() {
+        String key = verifier.issue("Алиса", nowSec() + 60);
+
+        ConnectionKeyVerifier.VerifiedKey verified = verifier.verify(key);
+
+        assertNotNull(verified);
+        assertEquals("Алиса", verified.getClientId());
+        assertEquals(nowSec() + 60, verified.getExpiresAtEpochSec());
+    }
+
+    public void testValidUnboundKey() {
+        ConnectionKeyVerifier.VerifiedKey verified = verifier.verify(verifier.issue(null, nowSec() + 60));
+
+        assertNotNull(verified);
+        assertNull(verified.getClientId());
+    }
+
+    public void testTamperedSignatureIsRejected() {
+        String[] parts = verifier.issue("Алиса", nowSec() + 60).split("\\.");
+        // Меняем первый символ подписи: последний несёт лишь часть бит
+        char first = parts[2].charAt(0);
+        String signature = (first == 'A' ? 'B' : 'A') + parts[2].substring(1);
+
+        assertNull(verifier.verify(parts[0] + "." + parts[1] + "." + signature));
+    }
+
+    public void testTamperedClientIdIsRejected() {
+        String[] parts = verifier.issue("Алиса", nowSec() + 60).split("\\.");
+        String otherClientId = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("Боб".getBytes(StandardCharsets.UTF_8));
+
+        assertNull(verifier.verify(otherClientId + "." + parts[1] + "." + parts[2]));
+    }
+
+    public void testTamperedExpiryIsRejected() {
+        String[] parts = verifier.issue("Алиса", nowSec() + 60).split("\\.");
+
+        assertNull(verifier.verify(parts[0] + "." + (nowSec() + 3600) + "." + parts[2]));
+    }
+
+    public void testKeySignedWithOtherSecretIsRejected() {
+        String key = new ConnectionKeyVerifier("other-secret", CACHE_TTL_MS, () -> now).issue("Алиса", nowSec() + 60);
+
+        assertNull(verifier.verify(key));
+    }
+
+    public void testExpiredKeyIsRejected() {
+        assertNull(verifier.verify(verifier.issue("Алиса", nowSec() - 1)));
+    }
+
+    public void testCachedKeyIsRejectedAfterExpiry() {
+        String key = verifier.issue("Алиса", nowSec() + 5);
+        assertNotNull(verifier.verify(key));
+
+        // Ключ истёк, а запись в кэше ещё жива
+        now += 10_000;
+        assertTrue(10_000 < CACHE_TTL_MS);
+
+        assertNull(verifier.verify(key));
+    }
+
+    public void testMalformedKeysAreRejected() {
+        String valid = verifier.issue("Алиса", nowSec() + 60);
+        String[] parts = valid.split("\\.");
+
+        assertNull(verifier.verify(null));
+        assertNull(verifier.verify(""));
+        assertNull(verifier.verify("abc"));
+        assertNull(verifier.verify(parts[0] + "." + parts[1]));
+        assertNull(verifier.verify(valid + ".extra"));
+        // Некорректный base64 в подписи и в clientId
+        assertNull(verifier.verify(parts[0] + "." + parts[1] + ".!!!"));
+        assertNull(verifier.verify("!!!." + parts[1] + "." + parts[2]));
+        // Срок действия - не число
+        assertNull(verifier.verify(parts[0] + ".soon." + parts[2]));
+        assertNull(verifier.verify(parts[0] + ".." + parts[2]));
+    }
+
+    public void testOversizedKeyIsRejected() {
+        String longClientId = "x".repeat(ConnectionKeyVerifier.MAX_KEY_LENGTH);
+
+        assertNull(verifier.verify(verifier.issue(longClientId, nowSec() + 60)));
+        assertEquals(0, verifier.cacheSize());
+    }
+
+    public void testInvalidKeysAreNotCached() {
+        String valid = verifier.issue("Алиса", nowSec() + 60);
+        assertNotNull(verifier.verify(valid));
+
+        // Поток мусорных ключей не вытесняет рабочую запись
+        for (int i = 0; i < ConnectionKeyVerifier.MAX_CACHE_SIZE * 2; i++) {
+            assertNull(verifier.verify("junk" + i + ".1.AAAA"));
+        }
+        assertNull(verifier.verify(verifier.issue("Боб", nowSec() - 1)));
+
+        assertEquals(1, verifier.cacheSize());
+        assertNotNull(verifier.verify(valid));
+    }
+
+    public void testFullCacheEvictsOldestEntriesOnly() {
+        String oldest = verifier.issue("first", nowSec() + 600);
+        assertNotNull(verifier.verify(oldest));
+        for (int i = 1; i < ConnectionKeyVerifier.MAX_CACHE_SIZE; i++) {
+            now++;
+            assertNotNull(verifier.verify(verifier.issue("client" + i, nowSec() + 600)));
+        }
+        assertEquals(ConnectionKeyVerifier.MAX_CACHE_SIZE, verifier.cacheSize());
+
+        now++;
+        String newest = verifier.issue("newest", nowSec() + 600);
+        assertNotNull(verifier.verify(newest));
+
+        // Вытеснена только часть записей, а не весь кэш
+        assertTrue(verifier.cacheSize() < ConnectionKeyVerifier.MAX_CACHE_SIZE);
+        assertTrue(verifier.cacheSize() > ConnectionKeyVerifier.MAX_CACHE_SIZE / 2);
+        // Самая старая запись вытеснена (проверка снова кладёт её в кэш), ключ по-прежнему валиден
+        int sizeBefore = verifier.cacheSize();
+        assertNotNull(verifier.verify(oldest));
+        assertEquals(sizeBefore + 1, verifier.cacheSize());
+    }
+
+    public void testEmptySecretIsRejected() {
+        try {
+            new ConnectionKeyVerifier("", CACHE_TTL_MS);
+            fail("Пустой секрет недопустим");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private long nowSec() {
+        return now / 1000;
+    }
+}
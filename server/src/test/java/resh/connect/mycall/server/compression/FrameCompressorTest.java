@@ -0,0 +1,88 @@
+package resh.connect.mycall.server.compression;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import junit.framework.TestCase;
+import resh.connect.mycall.common.util.FrameCompression;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Проверка порога сжатия и метрик FrameCompressor.
+ */
+public class FrameCompressorTest extends TestCase {
+
+    private static final int THRESHOLD = 1024;
+
+    private SimpleMeterRegistry registry;
+    private FrameCompressor compressor;
+
+    protected void setUp() {
+        registry = new SimpleMeterRegistry();
+        compressor = new FrameCompressor(true, THRESHOLD, registry);
+    }
+
+    public void testSmallFrameIsSkipped() {
+        assertNull(compressor.compress("{\"type\":\"heartbeat\"}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1.0, registry.get("mycall.ws.compression.skipped").counter().count(), 0.0);
+        assertEquals(0L, registry.get("mycall.ws.compression.ratio").summary().count());
+    }
+
+    public void testLargeFrameIsCompressedAndMeasured() throws Exception {
+        byte[] frame = roomUpdate(200);
+        assertTrue(frame.length >= THRESHOLD);
+
+        byte[] compressed = compressor.compress(frame);
+
+        assertNotNull(compressed);
+        assertTrue(Arrays.equals(frame, FrameCompression.decompress(compressed)));
+        assertEquals((double) frame.length, registry.get("mycall.ws.compression.bytes.in").counter().count(), 0.0);
+        assertEquals((double) compressed.length, registry.get("mycall.ws.compression.bytes.out").counter().count(), 0.0);
+        assertEquals(1L, registry.get("mycall.ws.compression.ratio").summary().count());
+        assertEquals((double) frame.length / compressed.length,
+                registry.get("mycall.ws.compression.ratio").summary().totalAmount(), 1e-9);
+        assertEquals(1L, registry.get("mycall.ws.compression.cpu").timer().count());
+        assertEquals(0.0, registry.get("mycall.ws.compression.skipped").counter().count(), 0.0);
+        assertEquals(0.0, registry.get("mycall.ws.compression.ineffective").counter().count(), 0.0);
+    }
+
+    public void testIncompressibleFrameReturnsNull() {
+        byte[] random = new byte[THRESHOLD * 4];
+        new Random(7).nextBytes(random);
+
+        assertNull(compressor.compress(random));
+        // Кадр уйдёт несжатым: учитывается как неудачная попытка, не как исходящие байты
+        assertEquals(1.0, registry.get("mycall.ws.compression.ineffective").counter().count(), 0.0);
+        assertEquals(1L, registry.get("mycall.ws.compression.cpu").timer().count());
+        assertEquals(0L, registry.get("mycall.ws.compression.ratio").summary().count());
+        assertEquals(0.0, registry.get("mycall.ws.compression.bytes.in").counter().count(), 0.0);
+        assertEquals(0.0, registry.get("mycall.ws.compression.bytes.out").counter().count(), 0.0);
+    }
+
+    public void testDisabledCompressorDoesNothing() {
+        FrameCompressor disabled = new FrameCompressor(false, THRESHOLD, registry);
+
+        assertNull(disabled.compress(roomUpdate(200)));
+        assertEquals(0.0, registry.get("mycall.ws.compression.skipped").counter().count(), 0.0);
+        assertEquals(0L, registry.get("mycall.ws.compression.ratio").summary().count());
+    }
+
+    public void testIsRequested() {
+        assertTrue(FrameCompressor.isRequested(URI.create("ws://localhost:8081/ws?key=abc&compression=deflate-dict")));
+        assertFalse(FrameCompressor.isRequested(URI.create("ws://localhost:8081/ws?compression=gzip")));
+        assertFalse(FrameCompressor.isRequested(URI.create("ws://localhost:8081/ws")));
+        assertFalse(FrameCompressor.isRequested(null));
+    }
+
+    private static byte[] roomUpdate(int participants) {
+        StringBuilder json = new StringBuilder("{\"type\":\"room_update\",\"room\":\"Главная\",\"participants\":[");
+        for (int i = 0; i < participants; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"nickname\":\"user").append(i).append("\",\"micOn\":").append(i % 2 == 0).append('}');
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
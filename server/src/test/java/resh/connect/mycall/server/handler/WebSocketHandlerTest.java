@@ -0,0 +1,164 @@
+package resh.connect.mycall.server.handler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import junit.framework.TestCase;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import resh.connect.mycall.common.util.JsonUtils;
+import resh.connect.mycall.server.compression.FrameCompressor;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Проверка подписок watch: наблюдатель получает список участников,
+ * но сам участником не считается и рассылок не вызывает.
+ */
+public class WebSocketHandlerTest extends TestCase {
+
+    private WebSocketHandler handler;
+
+    // sessionId -> отправленные этой сессии сообщения
+    private final Map<String, List<WebSocketMessage<?>>> sent = new HashMap<>();
+
+    protected void setUp() {
+        handler = new WebSocketHandler(new FrameCompressor(true, 1024, new SimpleMeterRegistry()));
+    }
+
+    public void testWatcherGetsSnapshotButIsNotParticipant() throws Exception {
+        WebSocketSession alice = session("s1");
+        WebSocketSession watcher = session("s2");
+        join(alice, "Alice", "A");
+
+        watch(watcher, "A");
+
+        assertEquals(1, sent.get("s2").size());
+        assertEquals("A", lastUpdate("s2").get("room"));
+        assertEquals(Set.of("Alice"), lastNicknames("s2"));
+        // Подписка не вызывает рассылку участникам
+        assertEquals(1, sent.get("s1").size());
+    }
+
+    public void testWatcherReceivesBroadcasts() throws Exception {
+        WebSocketSession watcher = session("s1");
+        watch(watcher, "A");
+        assertEquals(Set.of(), lastNicknames("s1"));
+
+        join(session("s2"), "Alice", "A");
+        join(session("s3"), "Bob", "A");
+
+        assertEquals(3, sent.get("s1").size());
+        assertEquals(Set.of("Alice", "Bob"), lastNicknames("s1"));
+        assertEquals(Set.of("Alice", "Bob"), lastNicknames("s3"));
+    }
+
+    public void testSwitchingWatchedRoom() throws Exception {
+        WebSocketSession watcher = session("s1");
+        watch(watcher, "A");
+        watch(watcher, "B");
+        assertEquals(2, sent.get("s1").size());
+        assertEquals(Set.of("B"), handler.watchedRooms());
+
+        join(session("s2"), "Alice", "A");
+        assertEquals(2, sent.get("s1").size());
+
+        join(session("s3"), "Bob", "B");
+        assertEquals(3, sent.get("s1").size());
+        assertEquals("B", lastUpdate("s1").get("room"));
+        assertEquals(Set.of("Bob"), lastNicknames("s1"));
+    }
+
+    public void testUnwatchAndCloseRemoveSubscription() throws Exception {
+        WebSocketSession first = session("s1");
+        WebSocketSession second = session("s2");
+        watch(first, "A");
+        watch(second, "B");
+
+        handler.handleTextMessage(first, new TextMessage("{\"type\":\"unwatch\"}"));
+        handler.afterConnectionClosed(second, CloseStatus.NORMAL);
+
+        // Пустые множества наблюдателей не остаются в памяти
+        assertTrue(handler.watchedRooms().isEmpty());
+
+        join(session("s3"), "Alice", "A");
+        join(session("s4"), "Bob", "B");
+        assertEquals(1, sent.get("s1").size());
+        assertEquals(1, sent.get("s2").size());
+    }
+
+    public void testParticipantWatchingOwnRoomGetsNoDuplicates() throws Exception {
+        WebSocketSession alice = session("s1");
+        join(alice, "Alice", "A");
+
+        watch(alice, "A");
+        // Снимок не отправляется: участник уже получает обновления комнаты
+        assertEquals(1, sent.get("s1").size());
+
+        join(session("s2"), "Bob", "A");
+        assertEquals(2, sent.get("s1").size());
+        assertEquals(Set.of("Alice", "Bob"), lastNicknames("s1"));
+
+        // Смотреть другую комнату участник может как обычный наблюдатель
+        watch(alice, "B");
+        assertEquals(3, sent.get("s1").size());
+        assertEquals("B", lastUpdate("s1").get("room"));
+    }
+
+    public void testFailingWatcherDoesNotAffectParticipants() throws Exception {
+        WebSocketSession watcher = session("s1");
+        watch(watcher, "A");
+        doThrow(new IOException("Соединение разорвано")).when(watcher).sendMessage(any());
+
+        WebSocketSession alice = session("s2");
+        join(alice, "Alice", "A");
+
+        // Участник вошёл и получил обновление, сломанный наблюдатель отписан
+        assertEquals(Set.of("Alice"), lastNicknames("s2"));
+        verify(alice, never()).close(any());
+        assertTrue(handler.watchedRooms().isEmpty());
+
+        join(session("s3"), "Bob", "A");
+        verify(watcher, times(2)).sendMessage(any());
+    }
+
+    private WebSocketSession session(String id) throws IOException {
+        List<WebSocketMessage<?>> messages = new ArrayList<>();
+        sent.put(id, messages);
+
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.getAttributes()).thenReturn(new HashMap<>());
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> messages.add(invocation.getArgument(0))).when(session).sendMessage(any());
+        handler.afterConnectionEstablished(session);
+        return session;
+    }
+
+    private void join(WebSocketSession session, String clientId, String room) throws Exception {
+        handler.handleTextMessage(session,
+                new TextMessage("{\"type\":\"join\",\"clientId\":\"" + clientId + "\",\"room\":\"" + room + "\"}"));
+    }
+
+    private void watch(WebSocketSession session, String room) throws Exception {
+        handler.handleTextMessage(session, new TextMessage("{\"type\":\"watch\",\"room\":\"" + room + "\"}"));
+    }
+
+    private Map<String, Object> lastUpdate(String sessionId) throws Exception {
+        List<WebSocketMessage<?>> messages = sent.get(sessionId);
+        TextMessage last = (TextMessage) messages.get(messages.size() - 1);
+        return JsonUtils.fromJson(last.getPayload(), Map.class);
+    }
+
+    private Set<String> lastNicknames(String sessionId) throws Exception {
+        Set<String> nicknames = new HashSet<>();
+        for (Object p : (List<?>) lastUpdate(sessionId).get("participants")) {
+            nicknames.add((String) ((Map<?, ?>) p).get("nickname"));
+        }
+        return nicknames;
+    }
+}